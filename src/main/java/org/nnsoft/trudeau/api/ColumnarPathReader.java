@@ -0,0 +1,383 @@
+package org.nnsoft.trudeau.api;
+
+/*
+ *   Copyright 2013 The Trudeau Project
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static org.nnsoft.trudeau.api.ColumnarPathWriter.COLUMNS;
+import static org.nnsoft.trudeau.api.ColumnarPathWriter.FORMAT_VERSION;
+import static org.nnsoft.trudeau.api.ColumnarPathWriter.MAGIC;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Scans the paths written by a {@link ColumnarPathWriter}, one block at a time.
+ *
+ * Blocks are read through memory-mapped windows of up to 1 GiB, re-mapped only when a block crosses the current one,
+ * so that the number of live mappings does not grow with the number of blocks.
+ *
+ * Each column of the current block is decoded only when requested, so that, for example, weights or path lengths
+ * can be scanned without decoding vertices and edges. Vertices are returned as {@link VertexInterner} ids.
+ *
+ * This class is not thread-safe.
+ */
+public final class ColumnarPathReader
+    implements Closeable
+{
+
+    private static final int SOURCES = 0;
+
+    private static final int TARGETS = 1;
+
+    private static final int HOP_OFFSETS = 2;
+
+    private static final int VERTICES = 3;
+
+    private static final int EDGES = 4;
+
+    private static final int WEIGHTS = 5;
+
+    private static final int HEADER_LENGTH = 8 + 4 * COLUMNS;
+
+    private static final long WINDOW_LENGTH = 1L << 30;
+
+    private static final long MAX_COLUMN_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final FileChannel channel;
+
+    private final Inflater inflater = new Inflater();
+
+    private final int[] columnLengths = new int[COLUMNS];
+
+    private final ByteBuffer header = ByteBuffer.allocate( HEADER_LENGTH );
+
+    private long position;
+
+    private MappedByteBuffer window;
+
+    private long windowStart;
+
+    private boolean positioned;
+
+    private int blockOffset;
+
+    private int pathCount;
+
+    private int hopCount;
+
+    /**
+     * Creates a new instance of {@link ColumnarPathReader}.
+     *
+     * @param file the file written by a {@link ColumnarPathWriter}
+     * @throws IOException if the file cannot be opened or it is not a columnar paths file
+     */
+    @SuppressWarnings( "resource" ) // the channel closes the stream
+    public ColumnarPathReader( File file )
+        throws IOException
+    {
+        requireNonNull( file, "Paths cannot be read from a null file" );
+        this.channel = new FileInputStream( file ).getChannel();
+
+        readHeader( 0, 8 );
+        if ( header.remaining() < 8 || header.getInt() != MAGIC )
+        {
+            channel.close();
+            throw new IOException( format( "%s is not a columnar paths file", file ) );
+        }
+        int version = header.getInt();
+        if ( version != FORMAT_VERSION )
+        {
+            channel.close();
+            throw new IOException( format( "%s has unsupported format version %s", file, version ) );
+        }
+        this.position = 8;
+    }
+
+    /**
+     * Moves to the next block of paths.
+     *
+     * @return true, if a next block exists, false if the end of the file has been reached.
+     * @throws IOException if the block cannot be read
+     */
+    public boolean nextBlock()
+        throws IOException
+    {
+        positioned = false;
+        long size = channel.size();
+        if ( position >= size )
+        {
+            return false;
+        }
+
+        readHeader( position, HEADER_LENGTH );
+        if ( header.remaining() < HEADER_LENGTH )
+        {
+            throw new IOException( format( "Truncated block header at %s", position ) );
+        }
+        int blockPaths = header.getInt();
+        int blockHops = header.getInt();
+        // every decoded column, as int or long array, has to fit a Java array
+        if ( blockPaths <= 0 || blockHops < 0 || ( blockPaths + 1L + blockHops ) * 8 > MAX_COLUMN_LENGTH )
+        {
+            throw new IOException( format( "Corrupted block header at %s: %s paths, %s hops", position, blockPaths, blockHops ) );
+        }
+
+        long blockLength = 0;
+        for ( int i = 0; i < COLUMNS; i++ )
+        {
+            columnLengths[i] = header.getInt();
+            if ( columnLengths[i] < 0 )
+            {
+                throw new IOException( format( "Corrupted block header at %s: column %s length %s", position, i, columnLengths[i] ) );
+            }
+            blockLength += columnLengths[i];
+        }
+        pathCount = blockPaths;
+        hopCount = blockHops;
+
+        long blockStart = position + HEADER_LENGTH;
+        if ( blockStart + blockLength > size )
+        {
+            throw new IOException( format( "Truncated block at %s", position ) );
+        }
+        if ( blockLength > Integer.MAX_VALUE )
+        {
+            throw new IOException( format( "Block at %s is too large to be mapped: %s bytes", position, blockLength ) );
+        }
+
+        if ( window == null || blockStart < windowStart || blockStart + blockLength > windowStart + window.capacity() )
+        {
+            long windowLength = Math.max( blockLength, Math.min( WINDOW_LENGTH, size - blockStart ) );
+            window = channel.map( MapMode.READ_ONLY, blockStart, windowLength );
+            windowStart = blockStart;
+        }
+        blockOffset = (int) ( blockStart - windowStart );
+
+        position = blockStart + blockLength;
+        positioned = true;
+        return true;
+    }
+
+    /**
+     * Returns the number of paths in the current block.
+     *
+     * @return the number of paths in the current block.
+     */
+    public int getPathCount()
+    {
+        return pathCount;
+    }
+
+    /**
+     * Returns the number of edges of all the paths in the current block.
+     *
+     * @return the number of edges of all the paths in the current block.
+     */
+    public int getHopCount()
+    {
+        return hopCount;
+    }
+
+    /**
+     * Decodes the source vertex ids of the current block.
+     *
+     * @return the source vertex ids of the current block.
+     * @throws IOException if the column cannot be decoded
+     */
+    public int[] readSources()
+        throws IOException
+    {
+        int[] sources = new int[pathCount];
+        inflate( SOURCES, sources.length * 4 ).asIntBuffer().get( sources );
+        return sources;
+    }
+
+    /**
+     * Decodes the target vertex ids of the current block.
+     *
+     * @return the target vertex ids of the current block.
+     * @throws IOException if the column cannot be decoded
+     */
+    public int[] readTargets()
+        throws IOException
+    {
+        int[] targets = new int[pathCount];
+        inflate( TARGETS, targets.length * 4 ).asIntBuffer().get( targets );
+        return targets;
+    }
+
+    /**
+     * Decodes the hop offsets of the current block: edges of the i-th path are in {@code [offsets[i], offsets[i + 1])},
+     * its vertices in {@code [offsets[i] + i, offsets[i + 1] + i]}.
+     *
+     * @return the {@link #getPathCount()} plus one hop offsets of the current block.
+     * @throws IOException if the column cannot be decoded
+     */
+    public int[] readHopOffsets()
+        throws IOException
+    {
+        int[] hopOffsets = new int[pathCount + 1];
+        inflate( HOP_OFFSETS, hopOffsets.length * 4 ).asIntBuffer().get( hopOffsets );
+        return hopOffsets;
+    }
+
+    /**
+     * Decodes the paths sizes of the current block.
+     *
+     * @return the paths sizes of the current block.
+     * @throws IOException if the column cannot be decoded
+     */
+    public int[] readSizes()
+        throws IOException
+    {
+        int[] hopOffsets = readHopOffsets();
+        int[] sizes = new int[pathCount];
+        for ( int i = 0; i < pathCount; i++ )
+        {
+            sizes[i] = hopOffsets[i + 1] - hopOffsets[i];
+        }
+        return sizes;
+    }
+
+    /**
+     * Decodes the vertex ids of all the paths of the current block.
+     *
+     * @return the vertex ids of all the paths of the current block.
+     * @throws IOException if the column cannot be decoded
+     * @see #readHopOffsets()
+     */
+    public int[] readVertices()
+        throws IOException
+    {
+        int[] vertices = new int[hopCount + pathCount];
+        inflate( VERTICES, vertices.length * 4 ).asIntBuffer().get( vertices );
+        return vertices;
+    }
+
+    /**
+     * Decodes the edge ids of all the paths of the current block.
+     *
+     * @return the edge ids of all the paths of the current block.
+     * @throws IOException if the column cannot be decoded
+     * @see #readHopOffsets()
+     */
+    public long[] readEdges()
+        throws IOException
+    {
+        long[] edges = new long[hopCount];
+        inflate( EDGES, edges.length * 8 ).asLongBuffer().get( edges );
+        return edges;
+    }
+
+    /**
+     * Decodes the paths weights of the current block.
+     *
+     * @return the paths weights of the current block.
+     * @throws IOException if the column cannot be decoded
+     */
+    public double[] readWeights()
+        throws IOException
+    {
+        double[] weights = new double[pathCount];
+        inflate( WEIGHTS, weights.length * 8 ).asDoubleBuffer().get( weights );
+        return weights;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    public void close()
+        throws IOException
+    {
+        window = null;
+        positioned = false;
+        inflater.end();
+        channel.close();
+    }
+
+    private void readHeader( long offset, int length )
+        throws IOException
+    {
+        header.clear().limit( length );
+        while ( header.hasRemaining() )
+        {
+            if ( channel.read( header, offset + header.position() ) < 0 )
+            {
+                break;
+            }
+        }
+        header.flip();
+    }
+
+    private ByteBuffer inflate( int column, int rawLength )
+        throws IOException
+    {
+        if ( !positioned )
+        {
+            throw new IOException( "No current block; nextBlock() has to be invoked first" );
+        }
+
+        int offset = blockOffset;
+        for ( int i = 0; i < column; i++ )
+        {
+            offset += columnLengths[i];
+        }
+
+        byte[] compressed = new byte[columnLengths[column]];
+        ByteBuffer source = window.duplicate();
+        source.position( offset );
+        source.get( compressed );
+
+        byte[] raw = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput( compressed );
+        try
+        {
+            int length = 0;
+            while ( length < rawLength && !inflater.finished() )
+            {
+                int inflated = inflater.inflate( raw, length, rawLength - length );
+                if ( inflated == 0 && inflater.needsInput() )
+                {
+                    break;
+                }
+                length += inflated;
+            }
+            if ( length != rawLength )
+            {
+                throw new IOException( format( "Corrupted column %s: expected %s bytes, found %s", column, rawLength, length ) );
+            }
+        }
+        catch ( DataFormatException e )
+        {
+            throw new IOException( format( "Corrupted column %s", column ), e );
+        }
+        return ByteBuffer.wrap( raw );
+    }
+
+}
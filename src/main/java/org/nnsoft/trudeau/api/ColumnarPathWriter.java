@@ -0,0 +1,381 @@
+package org.nnsoft.trudeau.api;
+
+/*
+ *   Copyright 2013 The Trudeau Project
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import java.util.zip.Deflater;
+
+/**
+ * Streams {@link WeightedPath}s to a columnar file, readable by {@link ColumnarPathReader}.
+ *
+ * Paths are buffered in blocks bounded both in paths and in hops; each block stores separate, deflated columns for sources,
+ * targets, hop offsets, vertex ids, edge ids and weights, so that readers can scan a column without decoding the others.
+ * Vertices are stored by their {@link VertexInterner} ids: each path stores its size plus one vertices,
+ * that is just the source for paths without edges.
+ *
+ * This class is not thread-safe.
+ *
+ * @param <V> the Graph vertices type
+ * @param <WE> the Graph weighted edges type
+ * @param <W> the weight type
+ */
+public final class ColumnarPathWriter<V, WE, W>
+    implements Closeable
+{
+
+    static final int MAGIC = 0x54524450;
+
+    static final int FORMAT_VERSION = 1;
+
+    static final int COLUMNS = 6;
+
+    private static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private static final int DEFAULT_BLOCK_HOPS = 1 << 20;
+
+    private static final int INITIAL_HOPS_CAPACITY = 1024;
+
+    private final FileChannel channel;
+
+    private final VertexInterner<V> interner;
+
+    private final ToLongFunction<? super WE> edgeIds;
+
+    private final ToDoubleFunction<? super W> weightValues;
+
+    private final int blockSize;
+
+    private final int maxBlockHops;
+
+    private final Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+
+    private final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+    private final byte[] compressionBuffer = new byte[8192];
+
+    private final int[] sources;
+
+    private final int[] targets;
+
+    private final int[] hopOffsets;
+
+    private final double[] weights;
+
+    private int[] vertices = new int[INITIAL_HOPS_CAPACITY];
+
+    private long[] edges = new long[INITIAL_HOPS_CAPACITY];
+
+    private int pathCount;
+
+    private int hopCount;
+
+    private boolean closed;
+
+    /**
+     * Creates a new instance of {@link ColumnarPathWriter} that buffers blocks of up to 4096 paths and 2^20 hops.
+     *
+     * @param file the file where paths are written, overwritten if it already exists
+     * @param interner the interner that assigns the vertex ids
+     * @param edgeIds the function that returns the id of an edge
+     * @param weightValues the function that maps weights to doubles
+     * @throws IOException if the file cannot be opened
+     */
+    public ColumnarPathWriter( File file,
+                               VertexInterner<V> interner,
+                               ToLongFunction<? super WE> edgeIds,
+                               ToDoubleFunction<? super W> weightValues )
+        throws IOException
+    {
+        this( file, interner, edgeIds, weightValues, DEFAULT_BLOCK_SIZE, DEFAULT_BLOCK_HOPS );
+    }
+
+    /**
+     * Creates a new instance of {@link ColumnarPathWriter} that buffers blocks of up to 2^20 hops.
+     *
+     * @param file the file where paths are written, overwritten if it already exists
+     * @param interner the interner that assigns the vertex ids
+     * @param edgeIds the function that returns the id of an edge
+     * @param weightValues the function that maps weights to doubles
+     * @param blockSize the maximum number of paths per block
+     * @throws IOException if the file cannot be opened
+     */
+    public ColumnarPathWriter( File file,
+                               VertexInterner<V> interner,
+                               ToLongFunction<? super WE> edgeIds,
+                               ToDoubleFunction<? super W> weightValues,
+                               int blockSize )
+        throws IOException
+    {
+        this( file, interner, edgeIds, weightValues, blockSize, DEFAULT_BLOCK_HOPS );
+    }
+
+    /**
+     * Creates a new instance of {@link ColumnarPathWriter}.
+     *
+     * @param file the file where paths are written, overwritten if it already exists
+     * @param interner the interner that assigns the vertex ids
+     * @param edgeIds the function that returns the id of an edge
+     * @param weightValues the function that maps weights to doubles
+     * @param blockSize the maximum number of paths per block
+     * @param maxBlockHops the maximum number of hops per block, exceeded only by blocks of a single path
+     * @throws IOException if the file cannot be opened
+     */
+    @SuppressWarnings( "resource" ) // the channel closes the stream
+    public ColumnarPathWriter( File file,
+                               VertexInterner<V> interner,
+                               ToLongFunction<? super WE> edgeIds,
+                               ToDoubleFunction<? super W> weightValues,
+                               int blockSize,
+                               int maxBlockHops )
+        throws IOException
+    {
+        requireNonNull( file, "Paths cannot be written to a null file" );
+        this.interner = requireNonNull( interner, "Paths cannot be written with a null vertex interner" );
+        this.edgeIds = requireNonNull( edgeIds, "Paths cannot be written with a null edge ids function" );
+        this.weightValues = requireNonNull( weightValues, "Paths cannot be written with a null weights function" );
+        if ( blockSize <= 0 )
+        {
+            throw new IllegalArgumentException( format( "Block size must be positive, found %s", blockSize ) );
+        }
+        if ( maxBlockHops <= 0 )
+        {
+            throw new IllegalArgumentException( format( "Block hops must be positive, found %s", maxBlockHops ) );
+        }
+
+        this.blockSize = blockSize;
+        this.maxBlockHops = maxBlockHops;
+        this.sources = new int[blockSize];
+        this.targets = new int[blockSize];
+        this.hopOffsets = new int[blockSize + 1];
+        this.weights = new double[blockSize];
+
+        this.channel = new FileOutputStream( file ).getChannel();
+
+        ByteBuffer header = ByteBuffer.allocate( 8 );
+        header.putInt( MAGIC ).putInt( FORMAT_VERSION ).flip();
+        writeFully( header );
+    }
+
+    /**
+     * Appends the input path, flushing the current block when full; if the path cannot be converted,
+     * the writer is left as it was before the invocation.
+     *
+     * @param path the path to write, it has to be an {@link InMemoryPath}
+     * @throws IOException if the block cannot be written
+     */
+    public void write( WeightedPath<V, WE, W> path )
+        throws IOException
+    {
+        path = requireNonNull( path, "Null paths cannot be written" );
+        if ( closed )
+        {
+            throw new IOException( "Paths cannot be written to a closed writer" );
+        }
+        if ( !( path instanceof InMemoryPath ) )
+        {
+            throw new GraphException( "Impossible to write path %s; only InMemoryPath instances expose their vertices and edges", path );
+        }
+
+        @SuppressWarnings( "unchecked" ) // WeightedPath<V, WE, W> implementations are InMemoryPath<V, WE>
+        InMemoryPath<V, WE> hops = (InMemoryPath<V, WE>) path;
+        if ( hops.getSize() > 0 && hops.getOrder() != hops.getSize() + 1 )
+        {
+            throw new GraphException( "Impossible to write path %s; %s vertices do not match %s edges",
+                                      path, hops.getOrder(), hops.getSize() );
+        }
+
+        if ( pathCount > 0 && (long) hopCount + hops.getSize() > maxBlockHops )
+        {
+            flush();
+        }
+
+        // converted values go past the counters, which move only once the whole path is converted
+        int vertexCount = hopCount + pathCount;
+        ensureCapacity( vertexCount + hops.getSize() + 1, hopCount + hops.getSize() );
+
+        int source = interner.getId( path.getSource() );
+        int target = interner.getId( path.getTarget() );
+        double weight = weightValues.applyAsDouble( path.getWeight() );
+
+        if ( hops.getSize() == 0 )
+        {
+            vertices[vertexCount] = source;
+        }
+        else
+        {
+            for ( V vertex : hops.getVertices() )
+            {
+                vertices[vertexCount++] = interner.getId( vertex );
+            }
+        }
+        int edgeCount = hopCount;
+        for ( WE edge : hops.getEdges() )
+        {
+            edges[edgeCount++] = edgeIds.applyAsLong( edge );
+        }
+
+        sources[pathCount] = source;
+        targets[pathCount] = target;
+        weights[pathCount] = weight;
+        hopCount = edgeCount;
+        hopOffsets[++pathCount] = hopCount;
+        if ( pathCount == blockSize || hopCount >= maxBlockHops )
+        {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the current block, even if not full.
+     *
+     * @throws IOException if the block cannot be written
+     */
+    public void flush()
+        throws IOException
+    {
+        if ( pathCount == 0 )
+        {
+            return;
+        }
+
+        byte[][] columns = new byte[COLUMNS][];
+        columns[0] = compress( toBytes( sources, pathCount ) );
+        columns[1] = compress( toBytes( targets, pathCount ) );
+        columns[2] = compress( toBytes( hopOffsets, pathCount + 1 ) );
+        columns[3] = compress( toBytes( vertices, hopCount + pathCount ) );
+        columns[4] = compress( toBytes( edges, hopCount ) );
+        columns[5] = compress( toBytes( weights, pathCount ) );
+
+        ByteBuffer header = ByteBuffer.allocate( 8 + 4 * COLUMNS );
+        header.putInt( pathCount ).putInt( hopCount );
+        for ( byte[] column : columns )
+        {
+            header.putInt( column.length );
+        }
+        header.flip();
+        writeFully( header );
+        for ( byte[] column : columns )
+        {
+            writeFully( ByteBuffer.wrap( column ) );
+        }
+
+        pathCount = 0;
+        hopCount = 0;
+
+        // a single path larger than the hops budget may have grown the buffers beyond it
+        if ( edges.length > maxBlockHops && edges.length > INITIAL_HOPS_CAPACITY )
+        {
+            vertices = new int[INITIAL_HOPS_CAPACITY];
+            edges = new long[INITIAL_HOPS_CAPACITY];
+        }
+    }
+
+    /**
+     * Writes the last block and closes the file.
+     *
+     * @throws IOException if the block cannot be written
+     */
+    public void close()
+        throws IOException
+    {
+        if ( closed )
+        {
+            return;
+        }
+
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            closed = true;
+            deflater.end();
+            channel.close();
+        }
+    }
+
+    private void ensureCapacity( int vertexCount, int edgeCount )
+    {
+        if ( vertexCount > vertices.length )
+        {
+            vertices = Arrays.copyOf( vertices, Math.max( vertexCount, Math.min( vertices.length * 2, maxBlockHops + blockSize ) ) );
+        }
+        if ( edgeCount > edges.length )
+        {
+            edges = Arrays.copyOf( edges, Math.max( edgeCount, Math.min( edges.length * 2, maxBlockHops ) ) );
+        }
+    }
+
+    private byte[] compress( byte[] raw )
+    {
+        deflater.reset();
+        deflater.setInput( raw );
+        deflater.finish();
+
+        compressed.reset();
+        while ( !deflater.finished() )
+        {
+            int length = deflater.deflate( compressionBuffer );
+            compressed.write( compressionBuffer, 0, length );
+        }
+        return compressed.toByteArray();
+    }
+
+    private void writeFully( ByteBuffer buffer )
+        throws IOException
+    {
+        while ( buffer.hasRemaining() )
+        {
+            channel.write( buffer );
+        }
+    }
+
+    private static byte[] toBytes( int[] values, int length )
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( length * 4 );
+        buffer.asIntBuffer().put( values, 0, length );
+        return buffer.array();
+    }
+
+    private static byte[] toBytes( long[] values, int length )
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( length * 8 );
+        buffer.asLongBuffer().put( values, 0, length );
+        return buffer.array();
+    }
+
+    private static byte[] toBytes( double[] values, int length )
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( length * 8 );
+        buffer.asDoubleBuffer().put( values, 0, length );
+        return buffer.array();
+    }
+
+}
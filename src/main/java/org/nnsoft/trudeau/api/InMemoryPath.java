@@ -55,6 +55,8 @@ public class InMemoryPath<V, E>
 
     private final Map<E, Entry<V, V>> indexedVertices = new HashMap<>();
 
+    private final PathFingerprint.Accumulator fingerprint = new PathFingerprint.Accumulator();
+
     /**
      * Creates a new instance of {@link InMemoryPath} from {@code start} vertex to {@code taget} vertex
      * @param start the start vertex.
@@ -114,6 +116,7 @@ public class InMemoryPath<V, E>
 
         vertices.addFirst( head );
         edges.addFirst( edge );
+        fingerprint.addInHead( edge );
 
         addConnection( head, edge, tail );
     }
@@ -129,6 +132,7 @@ public class InMemoryPath<V, E>
     {
         vertices.addLast( head );
         edges.addLast( edge );
+        fingerprint.addInTail( edge );
 
         if ( target.equals( tail ) )
         {
@@ -155,6 +159,16 @@ public class InMemoryPath<V, E>
         return unmodifiableList( edges );
     }
 
+    /**
+     * Returns the fingerprint of this path edge sequence, maintained incrementally while connections are added.
+     *
+     * @return the fingerprint of this path edge sequence.
+     */
+    public PathFingerprint getFingerprint()
+    {
+        return fingerprint.toFingerprint( source, target );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,260 @@
+package org.nnsoft.trudeau.api;
+
+/*
+ *   Copyright 2013 The Trudeau Project
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+import static java.util.Objects.requireNonNull;
+import static org.nnsoft.trudeau.api.VertexInterner.NO_VERTEX;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+import org.nnsoft.trudeau.math.monoid.Monoid;
+
+import com.google.common.graph.ValueGraph;
+
+/**
+ * A {@link PredecessorsList} counterpart that works on the dense vertex ids assigned by a {@link VertexInterner}:
+ * predecessors are stored in an {@code int} array and vertices are translated back only when paths are built.
+ *
+ * Building a path still looks edges up by vertices and fills an {@link InMemoryWeightedPath}, whose indexes are keyed
+ * by vertices too: that costs one lookup per hop of the result, once per query, while the search loop that fills
+ * this list only indexes arrays.
+ *
+ * @param <V> the Graph vertices type
+ * @param <WE> the Graph weighted edges type
+ * @param <W> the weight type
+ */
+public final class IndexedPredecessorsList<V, WE, W>
+{
+
+    private final ValueGraph<V, WE> graph;
+
+    private final VertexInterner<V> interner;
+
+    private final Monoid<W> weightOperations;
+
+    private final Function<WE, W> weightedEdges;
+
+    private final ShortcutUnpacker<V, WE> shortcuts;
+
+    private final int[] predecessors;
+
+    private int size;
+
+    public IndexedPredecessorsList( ValueGraph<V, WE> graph,
+                                    VertexInterner<V> interner,
+                                    Monoid<W> weightOperations,
+                                    Function<WE, W> weightedEdges )
+    {
+        this( graph, interner, weightOperations, weightedEdges, null );
+    }
+
+    /**
+     * Creates a new instance of {@link IndexedPredecessorsList} whose built paths have the shortcut edges unpacked
+     * into the original ones.
+     *
+     * @param graph the graph, containing both original edges and shortcuts
+     * @param interner the interner that assigned the vertex ids
+     * @param weightOperations the weight operations
+     * @param weightedEdges the function that returns the weight of an edge
+     * @param shortcuts the unpacker of the shortcut edges, null if the graph has no shortcuts
+     */
+    public IndexedPredecessorsList( ValueGraph<V, WE> graph,
+                                    VertexInterner<V> interner,
+                                    Monoid<W> weightOperations,
+                                    Function<WE, W> weightedEdges,
+                                    ShortcutUnpacker<V, WE> shortcuts )
+    {
+        this.graph = graph;
+        this.interner = requireNonNull( interner, "Predecessors cannot be indexed by a null interner" );
+        this.weightOperations = weightOperations;
+        this.weightedEdges = weightedEdges;
+        this.shortcuts = shortcuts;
+
+        this.predecessors = new int[interner.size()];
+        Arrays.fill( predecessors, NO_VERTEX );
+    }
+
+    /**
+     * Returns the interner that assigned the vertex ids.
+     *
+     * @return the interner that assigned the vertex ids.
+     */
+    public VertexInterner<V> getInterner()
+    {
+        return interner;
+    }
+
+    /**
+     * Add an edge in the predecessor list associated to the input vertex id.
+     *
+     * @param tail the predecessor vertex id
+     * @param head the id of the vertex that succeeds to the input vertex
+     */
+    public void addPredecessor( int tail, int head )
+    {
+        checkId( tail );
+        checkId( head );
+        if ( predecessors[tail] == NO_VERTEX )
+        {
+            size++;
+        }
+        predecessors[tail] = head;
+    }
+
+    /**
+     * Returns the predecessor id of the input vertex id.
+     *
+     * @param vertex the vertex id whose predecessor has to be retrieved
+     * @return the predecessor id of the input vertex id, {@link VertexInterner#NO_VERTEX} if none
+     */
+    public int getPredecessor( int vertex )
+    {
+        checkId( vertex );
+        return predecessors[vertex];
+    }
+
+    /**
+     * Build a {@link WeightedPath} instance related to source-target path.
+     *
+     * @param source the path source vertex id
+     * @param target the path target vertex id
+     * @return the weighted path related to source to target
+     */
+    public WeightedPath<V, WE, W> buildPath( int source, int target )
+    {
+        checkId( source );
+        checkId( target );
+        InMemoryWeightedPath<V, WE, W> path = newPath( source, target );
+
+        int vertex = target;
+        while ( source != vertex )
+        {
+            int predecessor = predecessors[vertex];
+            if ( predecessor == NO_VERTEX )
+            {
+                throw new PathNotFoundException( "Path from '%s' to '%s' doesn't exist",
+                                                 interner.getVertex( source ), interner.getVertex( target ) );
+            }
+            addConnectionInHead( path, predecessor, vertex );
+
+            vertex = predecessor;
+        }
+
+        return path;
+    }
+
+    /**
+     * Build a {@link WeightedPath} instance related to source-target path.
+     *
+     * @param source the path source vertex id
+     * @param touch the id of the node where search frontiers meet, producing the shortest path
+     * @param target the path target vertex id
+     * @param backwardsList the predecessor list in backwards search space along reversed edges
+     * @return the weighted path related to source to target
+     */
+    public WeightedPath<V, WE, W> buildPath( int source, int touch, int target, IndexedPredecessorsList<V, WE, W> backwardsList )
+    {
+        checkId( source );
+        checkId( touch );
+        checkId( target );
+        InMemoryWeightedPath<V, WE, W> path = newPath( source, target );
+
+        int vertex = touch;
+        while ( source != vertex )
+        {
+            int predecessor = predecessors[vertex];
+            if ( predecessor == NO_VERTEX )
+            {
+                throw new PathNotFoundException( "Path from '%s' to '%s' doesn't exist",
+                                                 interner.getVertex( source ), interner.getVertex( target ) );
+            }
+            addConnectionInHead( path, predecessor, vertex );
+
+            vertex = predecessor;
+        }
+
+        vertex = touch;
+
+        while ( target != vertex )
+        {
+            // 'predecessor' is actually a successor.
+            int predecessor = backwardsList.predecessors[vertex];
+            if ( predecessor == NO_VERTEX )
+            {
+                throw new PathNotFoundException( "Path from '%s' to '%s' doesn't exist",
+                                                 interner.getVertex( source ), interner.getVertex( target ) );
+            }
+            addConnectionInTail( path, vertex, predecessor );
+
+            vertex = predecessor;
+        }
+
+        return path;
+    }
+
+    /**
+     * Checks the predecessor list has no elements.
+     *
+     * @return true, if the predecessor list has no elements, false otherwise.
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    private void checkId( int id )
+    {
+        if ( id < 0 || id >= predecessors.length )
+        {
+            throw new GraphException( "Vertex id %s is not in [0, %s)", id, predecessors.length );
+        }
+    }
+
+    private InMemoryWeightedPath<V, WE, W> newPath( int source, int target )
+    {
+        return new InMemoryWeightedPath<V, WE, W>( interner.getVertex( source ), interner.getVertex( target ),
+                                                   weightOperations, weightedEdges );
+    }
+
+    private void addConnectionInHead( InMemoryWeightedPath<V, WE, W> path, int predecessor, int vertex )
+    {
+        V head = interner.getVertex( predecessor );
+        V tail = interner.getVertex( vertex );
+        if ( shortcuts == null )
+        {
+            path.addConnectionInHead( head, graph.edgeValue( head, tail ).get(), tail );
+            return;
+        }
+
+        shortcuts.appendInHead( path, head, tail );
+    }
+
+    private void addConnectionInTail( InMemoryWeightedPath<V, WE, W> path, int vertex, int successor )
+    {
+        V head = interner.getVertex( vertex );
+        V tail = interner.getVertex( successor );
+        if ( shortcuts == null )
+        {
+            path.addConnectionInTail( head, graph.edgeValue( head, tail ).get(), tail );
+            return;
+        }
+
+        shortcuts.appendInTail( path, head, tail );
+    }
+
+}
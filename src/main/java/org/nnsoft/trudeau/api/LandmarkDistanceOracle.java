@@ -0,0 +1,396 @@
+package org.nnsoft.trudeau.api;
+
+/*
+ *   Copyright 2013 The Trudeau Project
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+import com.google.common.graph.ValueGraph;
+
+/**
+ * Landmark (ALT) distance oracle: keeps the shortest-path trees computed from/to a small set of landmark vertices,
+ * together with per-landmark distance arrays over a dense vertex index, in order to provide
+ * triangle-inequality lower bounds for A* searches and approximate source-target distances and paths.
+ *
+ * Weights are mapped to non-negative {@code double}s whose sum must reflect the weights monoid append operation.
+ *
+ * @param <V> the Graph vertices type
+ * @param <WE> the Graph weighted edges type
+ * @param <W> the weight type
+ */
+public final class LandmarkDistanceOracle<V, WE, W>
+{
+
+    private final ValueGraph<V, WE> graph;
+
+    private final List<V> landmarks;
+
+    private final VertexInterner<V> interner;
+
+    private final PredecessorsList<V, WE, W>[] forwardTrees;
+
+    private final PredecessorsList<V, WE, W>[] backwardTrees;
+
+    /**
+     * Distances from each landmark to each vertex.
+     */
+    private final double[][] fromLandmark;
+
+    /**
+     * Distances from each vertex to each landmark.
+     */
+    private final double[][] toLandmark;
+
+    /**
+     * Builds a new {@link LandmarkDistanceOracle} for an undirected graph, computing one landmark shortest-path tree per core.
+     *
+     * @param <V> the Graph vertices type
+     * @param <WE> the Graph weighted edges type
+     * @param <W> the weight type
+     * @param graph the undirected graph
+     * @param landmarks the landmark vertices
+     * @param shortestPathTree the function that computes the full shortest-path tree rooted in the input landmark
+     * @param weightValues the function that maps weights to non-negative doubles
+     * @return the landmark distance oracle
+     */
+    public static <V, WE, W> LandmarkDistanceOracle<V, WE, W> build( ValueGraph<V, WE> graph,
+                                                                     Collection<V> landmarks,
+                                                                     Function<? super V, PredecessorsList<V, WE, W>> shortestPathTree,
+                                                                     ToDoubleFunction<? super W> weightValues )
+    {
+        graph = requireNonNull( graph, "Landmark distance oracle cannot be built on a null graph" );
+        if ( graph.isDirected() )
+        {
+            throw new IllegalArgumentException( "Directed graphs require landmark shortest-path trees along reversed edges too" );
+        }
+        return new LandmarkDistanceOracle<V, WE, W>( graph, landmarks, shortestPathTree, null, weightValues );
+    }
+
+    /**
+     * Builds a new {@link LandmarkDistanceOracle}, computing one landmark shortest-path tree pair per core.
+     *
+     * @param <V> the Graph vertices type
+     * @param <WE> the Graph weighted edges type
+     * @param <W> the weight type
+     * @param graph the graph
+     * @param landmarks the landmark vertices
+     * @param shortestPathTree the function that computes the full shortest-path tree rooted in the input landmark
+     * @param reversedShortestPathTree the function that computes the full shortest-path tree rooted in the input
+     *        landmark along reversed edges, where each vertex' entry is its successor towards the landmark
+     * @param weightValues the function that maps weights to non-negative doubles
+     * @return the landmark distance oracle
+     */
+    public static <V, WE, W> LandmarkDistanceOracle<V, WE, W> build( ValueGraph<V, WE> graph,
+                                                                     Collection<V> landmarks,
+                                                                     Function<? super V, PredecessorsList<V, WE, W>> shortestPathTree,
+                                                                     Function<? super V, PredecessorsList<V, WE, W>> reversedShortestPathTree,
+                                                                     ToDoubleFunction<? super W> weightValues )
+    {
+        graph = requireNonNull( graph, "Landmark distance oracle cannot be built on a null graph" );
+        reversedShortestPathTree = requireNonNull( reversedShortestPathTree, "Reversed shortest-path trees function cannot be null" );
+        return new LandmarkDistanceOracle<V, WE, W>( graph, landmarks, shortestPathTree, reversedShortestPathTree, weightValues );
+    }
+
+    @SuppressWarnings( { "unchecked", "rawtypes" } ) // generic arrays creation
+    private LandmarkDistanceOracle( ValueGraph<V, WE> graph,
+                                    Collection<V> landmarks,
+                                    Function<? super V, PredecessorsList<V, WE, W>> shortestPathTree,
+                                    Function<? super V, PredecessorsList<V, WE, W>> reversedShortestPathTree,
+                                    ToDoubleFunction<? super W> weightValues )
+    {
+        requireNonNull( landmarks, "Landmark distance oracle cannot be built on null landmarks" );
+        requireNonNull( shortestPathTree, "Shortest-path trees function cannot be null" );
+        requireNonNull( weightValues, "Weights cannot be mapped with a null function" );
+
+        this.graph = graph;
+        this.landmarks = unmodifiableList( new ArrayList<V>( landmarks ) );
+        if ( this.landmarks.isEmpty() )
+        {
+            throw new IllegalArgumentException( "Landmark distance oracle requires at least one landmark" );
+        }
+        this.interner = new VertexInterner<V>( graph );
+        for ( V landmark : this.landmarks )
+        {
+            indexOf( landmark );
+        }
+
+        int size = this.landmarks.size();
+        this.forwardTrees = new PredecessorsList[size];
+        this.fromLandmark = new double[size][];
+        if ( reversedShortestPathTree == null )
+        {
+            this.backwardTrees = forwardTrees;
+            this.toLandmark = fromLandmark;
+        }
+        else
+        {
+            this.backwardTrees = new PredecessorsList[size];
+            this.toLandmark = new double[size][];
+        }
+
+        // one task per landmark, each one writes only its own slots
+        IntStream.range( 0, size ).parallel().forEach( i ->
+        {
+            V landmark = this.landmarks.get( i );
+            forwardTrees[i] = shortestPathTree.apply( landmark );
+            fromLandmark[i] = distances( forwardTrees[i], landmark, false, weightValues );
+            if ( reversedShortestPathTree != null )
+            {
+                backwardTrees[i] = reversedShortestPathTree.apply( landmark );
+                toLandmark[i] = distances( backwardTrees[i], landmark, true, weightValues );
+            }
+        } );
+    }
+
+    /**
+     * Returns the landmark vertices.
+     *
+     * @return the landmark vertices.
+     */
+    public List<V> getLandmarks()
+    {
+        return landmarks;
+    }
+
+    /**
+     * Returns the interner that assigned the dense vertex ids the distance arrays are indexed by.
+     *
+     * @return the interner that assigned the dense vertex ids.
+     */
+    public VertexInterner<V> getInterner()
+    {
+        return interner;
+    }
+
+    /**
+     * Returns a lower bound of the source-target distance, given by the triangle inequality over all the landmarks;
+     * it never overestimates, so it is an admissible A* heuristic.
+     *
+     * @param source the source vertex
+     * @param target the target vertex
+     * @return the lower bound of the source-target distance, {@link Double#POSITIVE_INFINITY} if target is not reachable
+     */
+    public double getLowerBound( V source, V target )
+    {
+        return getLowerBoundByIds( indexOf( source ), indexOf( target ) );
+    }
+
+    /**
+     * Returns a lower bound of the source-target distance, where vertices are identified by their {@link #getInterner()} ids.
+     *
+     * @param s the source vertex id
+     * @param t the target vertex id
+     * @return the lower bound of the source-target distance, {@link Double#POSITIVE_INFINITY} if target is not reachable
+     * @see #getLowerBound(Object, Object)
+     */
+    public double getLowerBoundByIds( int s, int t )
+    {
+        double lowerBound = 0;
+        for ( int i = 0; i < fromLandmark.length; i++ )
+        {
+            // unreachable pairs produce NaN differences, that never win the comparisons
+            double bound = fromLandmark[i][t] - fromLandmark[i][s];
+            if ( bound > lowerBound )
+            {
+                lowerBound = bound;
+            }
+
+            bound = toLandmark[i][s] - toLandmark[i][t];
+            if ( bound > lowerBound )
+            {
+                lowerBound = bound;
+            }
+        }
+        return lowerBound;
+    }
+
+    /**
+     * Returns the approximate source-target distance, as the shortest source-landmark-target distance
+     * over all the landmarks; it is an upper bound, that never underestimates and may exceed the weight of
+     * {@link #getApproximatePath(Object, Object)}, which cuts where the source and target branches meet.
+     *
+     * @param source the source vertex
+     * @param target the target vertex
+     * @return the approximate source-target distance, {@link Double#POSITIVE_INFINITY} if no landmark connects them
+     */
+    public double getApproximateDistance( V source, V target )
+    {
+        return getApproximateDistanceByIds( indexOf( source ), indexOf( target ) );
+    }
+
+    /**
+     * Returns the approximate source-target distance, where vertices are identified by their {@link #getInterner()} ids.
+     *
+     * @param s the source vertex id
+     * @param t the target vertex id
+     * @return the approximate source-target distance, {@link Double#POSITIVE_INFINITY} if no landmark connects them
+     * @see #getApproximateDistance(Object, Object)
+     */
+    public double getApproximateDistanceByIds( int s, int t )
+    {
+        if ( s == t )
+        {
+            return 0;
+        }
+
+        int i = closestLandmark( s, t );
+        return toLandmark[i][s] + fromLandmark[i][t];
+    }
+
+    /**
+     * Build the {@link WeightedPath} from source to target along the trees of the landmark that minimizes
+     * the source-landmark-target distance: the source branch is followed up to the first vertex of the target branch,
+     * so the path does not reach the landmark when both branches share a vertex below it.
+     *
+     * @param source the path source vertex
+     * @param target the path target vertex
+     * @return the weighted path from source to target through the closest landmark
+     */
+    public WeightedPath<V, WE, W> getApproximatePath( V source, V target )
+    {
+        int s = indexOf( source );
+        int t = indexOf( target );
+        int i = closestLandmark( s, t );
+
+        PredecessorsList<V, WE, W> forwardTree = forwardTrees[i];
+        InMemoryWeightedPath<V, WE, W> path =
+            new InMemoryWeightedPath<V, WE, W>( source, target, forwardTree.getWeightOperations(), forwardTree.getWeightedEdges() );
+        if ( s == t )
+        {
+            return path;
+        }
+
+        if ( Double.isInfinite( toLandmark[i][s] + fromLandmark[i][t] ) )
+        {
+            throw new PathNotFoundException( "Path from '%s' to '%s' doesn't exist", source, target );
+        }
+
+        V landmark = landmarks.get( i );
+        PredecessorsList<V, WE, W> backwardTree = backwardTrees[i];
+
+        // the target branch, from the target up to the landmark
+        List<V> targetBranch = new ArrayList<V>();
+        Map<V, Integer> targetBranchIndex = new HashMap<V, Integer>();
+        for ( V ancestor = target; ; ancestor = forwardTree.getPredecessor( ancestor ) )
+        {
+            if ( ancestor == null )
+            {
+                throw new PathNotFoundException( "Path from '%s' to '%s' doesn't exist", source, target );
+            }
+            targetBranchIndex.put( ancestor, targetBranch.size() );
+            targetBranch.add( ancestor );
+            if ( landmark.equals( ancestor ) )
+            {
+                break;
+            }
+        }
+
+        // source towards the landmark, up to where the target branch is met, so that no vertex is repeated
+        V vertex = source;
+        Integer meeting;
+        while ( ( meeting = targetBranchIndex.get( vertex ) ) == null )
+        {
+            V successor = backwardTree.getPredecessor( vertex );
+            if ( successor == null )
+            {
+                throw new PathNotFoundException( "Path from '%s' to '%s' doesn't exist", source, target );
+            }
+            path.addConnectionInTail( vertex, graph.edgeValue( vertex, successor ).get(), successor );
+            vertex = successor;
+        }
+
+        // then down the target branch
+        for ( int j = meeting - 1; j >= 0; j-- )
+        {
+            V descendant = targetBranch.get( j );
+            path.addConnectionInTail( vertex, graph.edgeValue( vertex, descendant ).get(), descendant );
+            vertex = descendant;
+        }
+
+        return path;
+    }
+
+    private int closestLandmark( int s, int t )
+    {
+        int closest = 0;
+        double distance = Double.POSITIVE_INFINITY;
+        for ( int i = 0; i < fromLandmark.length; i++ )
+        {
+            double current = toLandmark[i][s] + fromLandmark[i][t];
+            if ( current < distance )
+            {
+                closest = i;
+                distance = current;
+            }
+        }
+        return closest;
+    }
+
+    private int indexOf( V vertex )
+    {
+        vertex = requireNonNull( vertex, "Landmark distance oracle cannot be queried with null vertices" );
+        return interner.getId( vertex );
+    }
+
+    private double[] distances( PredecessorsList<V, WE, W> tree, V landmark, boolean reversed, ToDoubleFunction<? super W> weightValues )
+    {
+        double[] distances = new double[interner.size()];
+        Arrays.fill( distances, Double.NaN );
+        distances[indexOf( landmark )] = weightValues.applyAsDouble( tree.getWeightOperations().identity() );
+
+        // walks each vertex up to an already measured ancestor, then measures the walked vertices top-down
+        Deque<V> pending = new ArrayDeque<V>();
+        for ( int i = 0; i < distances.length; i++ )
+        {
+            V vertex = interner.getVertex( i );
+            while ( Double.isNaN( distances[indexOf( vertex )] ) )
+            {
+                V predecessor = tree.getPredecessor( vertex );
+                if ( predecessor == null )
+                {
+                    distances[indexOf( vertex )] = Double.POSITIVE_INFINITY;
+                    break;
+                }
+                pending.push( vertex );
+                vertex = predecessor;
+            }
+
+            while ( !pending.isEmpty() )
+            {
+                V descendant = pending.pop();
+                V predecessor = tree.getPredecessor( descendant );
+                WE edge = reversed ? graph.edgeValue( descendant, predecessor ).get() : graph.edgeValue( predecessor, descendant ).get();
+                distances[indexOf( descendant )] =
+                    distances[indexOf( predecessor )] + weightValues.applyAsDouble( tree.getWeightedEdges().apply( edge ) );
+            }
+        }
+        return distances;
+    }
+
+}
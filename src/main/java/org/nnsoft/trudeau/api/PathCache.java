@@ -0,0 +1,401 @@
+package org.nnsoft.trudeau.api;
+
+/*
+ *   Copyright 2013 The Trudeau Project
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * A bounded cache of {@link WeightedPath}s keyed by source-target vertices.
+ *
+ * Eviction follows a segmented LRU policy: new paths enter a probation segment and are promoted to a protected
+ * segment, holding up to 80% of the budget, when hit again; so that the few hot source-target pairs are not flushed
+ * by one-off queries. The budget is expressed in hops, each path costing its size plus one.
+ *
+ * Cached paths are bound to the graph version stamp they have been computed on: as soon as the stamp changes,
+ * the whole cache is invalidated, so that edits to the graph never serve stale paths.
+ *
+ * @param <V> the Graph vertices type
+ * @param <WE> the Graph weighted edges type
+ * @param <W> the weight type
+ */
+public final class PathCache<V, WE, W>
+{
+
+    private final long maxHops;
+
+    private final long maxProtectedHops;
+
+    private final LongSupplier graphVersion;
+
+    private final ToIntFunction<? super WeightedPath<V, WE, W>> pathSizes;
+
+    private final LinkedHashMap<Entry<V, V>, CachedPath<V, WE, W>> probation = new LinkedHashMap<>();
+
+    private final LinkedHashMap<Entry<V, V>, CachedPath<V, WE, W>> protectedSegment = new LinkedHashMap<>();
+
+    private long probationHops;
+
+    private long protectedHops;
+
+    private long version;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    private long invalidationCount;
+
+    /**
+     * Creates a new instance of {@link PathCache} that accepts {@link InMemoryPath} instances only,
+     * sized by {@link InMemoryPath#getSize()}.
+     *
+     * @param maxHops the memory budget, as the maximum number of cached hops
+     * @param graphVersion the supplier of the current graph version stamp, that must change whenever the graph is edited
+     */
+    public PathCache( long maxHops, LongSupplier graphVersion )
+    {
+        this( maxHops, graphVersion, PathCache::inMemoryPathSize );
+    }
+
+    /**
+     * Creates a new instance of {@link PathCache}.
+     *
+     * @param maxHops the memory budget, as the maximum number of cached hops
+     * @param graphVersion the supplier of the current graph version stamp, that must change whenever the graph is edited
+     * @param pathSizes the function that returns the number of edges of a path
+     */
+    public PathCache( long maxHops, LongSupplier graphVersion, ToIntFunction<? super WeightedPath<V, WE, W>> pathSizes )
+    {
+        if ( maxHops <= 0 )
+        {
+            throw new IllegalArgumentException( format( "Path cache budget must be positive, found %s", maxHops ) );
+        }
+
+        this.maxHops = maxHops;
+        this.maxProtectedHops = maxHops - maxHops / 5;
+        this.graphVersion = requireNonNull( graphVersion, "Path cache requires a not null graph version stamp supplier" );
+        this.version = graphVersion.getAsLong();
+        this.pathSizes = requireNonNull( pathSizes, "Path cache requires a not null path sizes function" );
+    }
+
+    /**
+     * Returns the cached path from source to target.
+     *
+     * @param source the path source vertex
+     * @param target the path target vertex
+     * @return the cached path from source to target, null if not cached
+     */
+    public synchronized WeightedPath<V, WE, W> get( V source, V target )
+    {
+        checkVersion( graphVersion.getAsLong() );
+        Entry<V, V> key = key( source, target );
+
+        CachedPath<V, WE, W> cached = protectedSegment.remove( key );
+        if ( cached != null )
+        {
+            protectedSegment.put( key, cached );
+            hitCount++;
+            return cached.path;
+        }
+
+        cached = probation.remove( key );
+        if ( cached != null )
+        {
+            promote( key, cached );
+            hitCount++;
+            return cached.path;
+        }
+
+        missCount++;
+        return null;
+    }
+
+    /**
+     * Returns the cached path from source to target, searching and caching it if not cached yet.
+     *
+     * The search runs outside of the cache lock; its result is not cached if the graph has been edited in the meanwhile.
+     * Searches should throw {@link PathNotFoundException} when no path exists; null results are returned, but not cached.
+     *
+     * @param source the path source vertex
+     * @param target the path target vertex
+     * @param search the function that searches the path from source to target
+     * @return the path from source to target, null if the search returned null
+     */
+    public WeightedPath<V, WE, W> get( V source, V target, BiFunction<? super V, ? super V, ? extends WeightedPath<V, WE, W>> search )
+    {
+        long searchVersion = graphVersion.getAsLong();
+        WeightedPath<V, WE, W> path = get( source, target );
+        if ( path != null )
+        {
+            return path;
+        }
+
+        path = search.apply( source, target );
+        if ( path != null )
+        {
+            put( searchVersion, source, target, path );
+        }
+        return path;
+    }
+
+    /**
+     * Caches the path from source to target, computed on the current graph version.
+     *
+     * @param source the path source vertex
+     * @param target the path target vertex
+     * @param path the path from source to target
+     */
+    public void put( V source, V target, WeightedPath<V, WE, W> path )
+    {
+        put( graphVersion.getAsLong(), source, target, path );
+    }
+
+    private synchronized void put( long pathVersion, V source, V target, WeightedPath<V, WE, W> path )
+    {
+        path = requireNonNull( path, "Null paths cannot be cached" );
+        Entry<V, V> key = key( source, target );
+
+        checkVersion( graphVersion.getAsLong() );
+        if ( pathVersion != version )
+        {
+            return;
+        }
+
+        int size = pathSizes.applyAsInt( path );
+        if ( size < 0 )
+        {
+            throw new GraphException( "Impossible to cache path %s; negative size %s", path, size );
+        }
+
+        remove( key );
+
+        CachedPath<V, WE, W> cached = new CachedPath<V, WE, W>( path, size );
+        if ( cached.hops > maxHops )
+        {
+            return;
+        }
+
+        probation.put( key, cached );
+        probationHops += cached.hops;
+
+        while ( probationHops + protectedHops > maxHops )
+        {
+            // the newcomer is the last probation entry, it is the victim only if nothing else can be evicted
+            Iterator<CachedPath<V, WE, W>> victims =
+                probation.size() > 1 || protectedSegment.isEmpty() ? probation.values().iterator() : protectedSegment.values().iterator();
+            CachedPath<V, WE, W> victim = victims.next();
+            victims.remove();
+            if ( victim.segment == Segment.PROTECTED )
+            {
+                protectedHops -= victim.hops;
+            }
+            else
+            {
+                probationHops -= victim.hops;
+            }
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Removes all the cached paths.
+     */
+    public synchronized void invalidateAll()
+    {
+        probation.clear();
+        protectedSegment.clear();
+        probationHops = 0;
+        protectedHops = 0;
+        invalidationCount++;
+    }
+
+    /**
+     * Returns the number of cached paths.
+     *
+     * @return the number of cached paths.
+     */
+    public synchronized int size()
+    {
+        return probation.size() + protectedSegment.size();
+    }
+
+    /**
+     * Returns the number of cached hops.
+     *
+     * @return the number of cached hops.
+     */
+    public synchronized long getHops()
+    {
+        return probationHops + protectedHops;
+    }
+
+    /**
+     * Returns the number of lookups that found a cached path.
+     *
+     * @return the number of lookups that found a cached path.
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a cached path.
+     *
+     * @return the number of lookups that did not find a cached path.
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Returns the ratio of lookups that found a cached path.
+     *
+     * @return the ratio of lookups that found a cached path, 1 if no lookup has been performed.
+     */
+    public synchronized double getHitRate()
+    {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    /**
+     * Returns the number of paths evicted to stay within the budget.
+     *
+     * @return the number of paths evicted to stay within the budget.
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the number of times the whole cache has been invalidated, either explicitly or by graph edits.
+     *
+     * @return the number of times the whole cache has been invalidated.
+     */
+    public synchronized long getInvalidationCount()
+    {
+        return invalidationCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String toString()
+    {
+        return format( "PathCache [size=%s, hops=%s/%s, hitRate=%s, evictions=%s, invalidations=%s]",
+                       size(), getHops(), maxHops, getHitRate(), evictionCount, invalidationCount );
+    }
+
+    private void checkVersion( long currentVersion )
+    {
+        if ( currentVersion != version )
+        {
+            version = currentVersion;
+            invalidateAll();
+        }
+    }
+
+    private void promote( Entry<V, V> key, CachedPath<V, WE, W> cached )
+    {
+        probationHops -= cached.hops;
+        cached.segment = Segment.PROTECTED;
+        protectedSegment.put( key, cached );
+        protectedHops += cached.hops;
+
+        // protected overflow goes back to probation, where it is the most recently used
+        Iterator<Entry<Entry<V, V>, CachedPath<V, WE, W>>> demoted = protectedSegment.entrySet().iterator();
+        while ( protectedHops > maxProtectedHops && protectedSegment.size() > 1 )
+        {
+            Entry<Entry<V, V>, CachedPath<V, WE, W>> eldest = demoted.next();
+            demoted.remove();
+            protectedHops -= eldest.getValue().hops;
+            eldest.getValue().segment = Segment.PROBATION;
+            probation.put( eldest.getKey(), eldest.getValue() );
+            probationHops += eldest.getValue().hops;
+        }
+    }
+
+    private void remove( Entry<V, V> key )
+    {
+        CachedPath<V, WE, W> cached = protectedSegment.remove( key );
+        if ( cached != null )
+        {
+            protectedHops -= cached.hops;
+        }
+
+        cached = probation.remove( key );
+        if ( cached != null )
+        {
+            probationHops -= cached.hops;
+        }
+    }
+
+    private static <V> Entry<V, V> key( V source, V target )
+    {
+        source = requireNonNull( source, "Path source cannot be null" );
+        target = requireNonNull( target, "Path target cannot be null" );
+        return new SimpleImmutableEntry<V, V>( source, target );
+    }
+
+    private static int inMemoryPathSize( WeightedPath<?, ?, ?> path )
+    {
+        if ( !( path instanceof InMemoryPath ) )
+        {
+            throw new GraphException( "Impossible to cache path %s; only InMemoryPath instances expose their size", path );
+        }
+        return ( (InMemoryPath<?, ?>) path ).getSize();
+    }
+
+    private enum Segment
+    {
+        PROBATION,
+        PROTECTED
+    }
+
+    private static final class CachedPath<V, WE, W>
+    {
+
+        final WeightedPath<V, WE, W> path;
+
+        final long hops;
+
+        Segment segment = Segment.PROBATION;
+
+        CachedPath( WeightedPath<V, WE, W> path, int size )
+        {
+            this.path = path;
+            this.hops = 1L + size;
+        }
+
+    }
+
+}
@@ -0,0 +1,198 @@
+package org.nnsoft.trudeau.api;
+
+/*
+ *   Copyright 2013 The Trudeau Project
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+import static java.lang.String.format;
+
+import java.util.Objects;
+
+/**
+ * A 128-bit fingerprint of the edge sequence of a {@link Path}.
+ *
+ * Two paths traversing the same edges in the same order, between the same source and target,
+ * always share the same fingerprint. By default the fingerprint is derived from the edges and endpoints hash codes,
+ * that are only 32 bits wide, so distinct paths whose elements have colliding hash codes share the same fingerprint
+ * as well: a fingerprint match is a candidate that has to be confirmed comparing the paths, unless edges are hashed
+ * by a 64-bit function, as {@link PathSet} allows.
+ */
+public final class PathFingerprint
+{
+
+    private static final long HIGH_BASE = 0x9E3779B97F4A7C15L;
+
+    private static final long LOW_BASE = 0xC2B2AE3D27D4EB4FL;
+
+    private static final long LOW_SALT = 0x165667B19E3779F9L;
+
+    private final long high;
+
+    private final long low;
+
+    PathFingerprint( long high, long low )
+    {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Returns the most significant 64 bits of this fingerprint.
+     *
+     * @return the most significant 64 bits of this fingerprint.
+     */
+    public long getHigh()
+    {
+        return high;
+    }
+
+    /**
+     * Returns the least significant 64 bits of this fingerprint.
+     *
+     * @return the least significant 64 bits of this fingerprint.
+     */
+    public long getLow()
+    {
+        return low;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+        return (int) ( low ^ ( low >>> 32 ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals( Object obj )
+    {
+        if ( this == obj )
+        {
+            return true;
+        }
+
+        if ( obj == null || getClass() != obj.getClass() )
+        {
+            return false;
+        }
+
+        PathFingerprint other = (PathFingerprint) obj;
+        return high == other.high && low == other.low;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return format( "PathFingerprint [%016x%016x]", high, low );
+    }
+
+    /**
+     * Spreads the input bits over the whole 64-bit word (SplitMix64 finalizer).
+     *
+     * @param x the value to mix
+     * @return the mixed value
+     */
+    static long mix( long x )
+    {
+        x = ( x ^ ( x >>> 30 ) ) * 0xBF58476D1CE4E5B9L;
+        x = ( x ^ ( x >>> 27 ) ) * 0x94D049BB133111EBL;
+        return x ^ ( x >>> 31 );
+    }
+
+    /**
+     * Running polynomial hash of an edge sequence that can grow on both ends in constant time,
+     * as {@link InMemoryPath} does while rebuilding paths from predecessor lists.
+     */
+    static final class Accumulator
+    {
+
+        private long high;
+
+        private long low;
+
+        private long highPower = 1L;
+
+        private long lowPower = 1L;
+
+        /**
+         * Prepends the input element to the hashed sequence.
+         *
+         * @param element the element in head
+         */
+        void addInHead( Object element )
+        {
+            addInHead( Objects.hashCode( element ) );
+        }
+
+        /**
+         * Prepends the input element hash to the hashed sequence.
+         *
+         * @param hash the 64-bit hash of the element in head
+         */
+        void addInHead( long hash )
+        {
+            high += mix( hash ) * highPower;
+            low += mix( hash ^ LOW_SALT ) * lowPower;
+            highPower *= HIGH_BASE;
+            lowPower *= LOW_BASE;
+        }
+
+        /**
+         * Appends the input element to the hashed sequence.
+         *
+         * @param element the element in tail
+         */
+        void addInTail( Object element )
+        {
+            addInTail( Objects.hashCode( element ) );
+        }
+
+        /**
+         * Appends the input element hash to the hashed sequence.
+         *
+         * @param hash the 64-bit hash of the element in tail
+         */
+        void addInTail( long hash )
+        {
+            high = high * HIGH_BASE + mix( hash );
+            low = low * LOW_BASE + mix( hash ^ LOW_SALT );
+            highPower *= HIGH_BASE;
+            lowPower *= LOW_BASE;
+        }
+
+        /**
+         * Seals the current sequence state, bound to the path endpoints.
+         *
+         * @param source the path source vertex
+         * @param target the path target vertex
+         * @return the fingerprint of the hashed sequence
+         */
+        PathFingerprint toFingerprint( Object source, Object target )
+        {
+            long endpoints = mix( ( (long) Objects.hashCode( source ) << 32 ) ^ ( Objects.hashCode( target ) & 0xFFFFFFFFL ) );
+            return new PathFingerprint( mix( high ^ endpoints ), mix( low + endpoints ) );
+        }
+
+    }
+
+}
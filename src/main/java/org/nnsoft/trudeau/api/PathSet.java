@@ -0,0 +1,403 @@
+package org.nnsoft.trudeau.api;
+
+/*
+ *   Copyright 2013 The Trudeau Project
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+import static com.google.common.collect.Iterables.elementsEqual;
+import static java.lang.String.format;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+import static org.nnsoft.trudeau.api.PathFingerprint.mix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+/**
+ * A set of {@link InMemoryPath}s that drops duplicates, looked up by their {@link PathFingerprint} and confirmed
+ * comparing endpoints and edges, and near-duplicates by the Jaccard similarity of their edge sets, estimated via MinHash signatures
+ * and indexed with locality-sensitive hashing, so that each insertion only compares the paths
+ * sharing at least one signature band.
+ *
+ * Edges are hashed by their hash codes, unless a 64-bit edge hash function is provided, which lowers the
+ * fingerprint collisions to be confirmed.
+ *
+ * Paths without edges have empty edge sets: they are dropped only when identical, and are not similar to any path.
+ *
+ * @param <V> the Graph vertices type
+ * @param <E> the Graph edges type
+ */
+public final class PathSet<V, E>
+    implements Iterable<InMemoryPath<V, E>>
+{
+
+    private static final int DEFAULT_SIGNATURE_LENGTH = 64;
+
+    private static final int DEFAULT_BANDS = 16;
+
+    private final int bands;
+
+    private final int rows;
+
+    private final long[] seeds;
+
+    private final ToLongFunction<? super E> edgeHashes;
+
+    private final Map<PathFingerprint, List<InMemoryPath<V, E>>> fingerprints = new HashMap<>();
+
+    private final List<InMemoryPath<V, E>> paths = new ArrayList<>();
+
+    private final List<long[]> signatures = new ArrayList<>();
+
+    private final Map<Long, List<Integer>> buckets = new HashMap<>();
+
+    /**
+     * Creates a new instance of {@link PathSet} with 64 MinHash functions grouped in 16 bands,
+     * which finds candidate near-duplicates with similarity above ~0.5.
+     */
+    public PathSet()
+    {
+        this( DEFAULT_SIGNATURE_LENGTH, DEFAULT_BANDS );
+    }
+
+    /**
+     * Creates a new instance of {@link PathSet}.
+     *
+     * Given {@code r = signatureLength / bands} rows per band, paths whose similarity is above
+     * {@code (1 / bands) ^ (1 / r)} are likely to be found by similarity queries.
+     *
+     * @param signatureLength the number of MinHash functions per path
+     * @param bands the number of locality-sensitive hashing bands, must divide {@code signatureLength}
+     */
+    public PathSet( int signatureLength, int bands )
+    {
+        this( signatureLength, bands, null );
+    }
+
+    /**
+     * Creates a new instance of {@link PathSet} whose fingerprints and signatures hash edges by the input function.
+     *
+     * @param signatureLength the number of MinHash functions per path
+     * @param bands the number of locality-sensitive hashing bands, must divide {@code signatureLength}
+     * @param edgeHashes the function that returns the 64-bit hash of an edge, null to use the edges hash codes
+     */
+    public PathSet( int signatureLength, int bands, ToLongFunction<? super E> edgeHashes )
+    {
+        if ( signatureLength <= 0 || bands <= 0 || signatureLength % bands != 0 )
+        {
+            throw new IllegalArgumentException( format( "Signature length %s must be a positive multiple of bands %s",
+                                                        signatureLength, bands ) );
+        }
+
+        this.bands = bands;
+        this.rows = signatureLength / bands;
+        this.seeds = new long[signatureLength];
+        for ( int i = 0; i < signatureLength; i++ )
+        {
+            seeds[i] = mix( i + 1L );
+        }
+        this.edgeHashes = edgeHashes;
+    }
+
+    /**
+     * Adds the input path, unless an identical one is already contained.
+     *
+     * @param path the path to add
+     * @return true, if the path has been added, false if it was a duplicate.
+     */
+    public boolean add( InMemoryPath<V, E> path )
+    {
+        path = requireNonNull( path, "Null paths cannot be added" );
+        PathFingerprint fingerprint = fingerprint( path );
+        if ( contains( fingerprint, path ) )
+        {
+            return false;
+        }
+
+        index( fingerprint, path, signature( path ) );
+        return true;
+    }
+
+    /**
+     * Adds the input path, unless an identical one or one at least {@code maxSimilarity} similar is already contained.
+     *
+     * @param path the path to add
+     * @param maxSimilarity the estimated Jaccard similarity of edge sets above which paths are near-duplicates
+     * @return true, if the path has been added, false if it was a duplicate or a near-duplicate.
+     */
+    public boolean addIfDissimilar( InMemoryPath<V, E> path, double maxSimilarity )
+    {
+        path = requireNonNull( path, "Null paths cannot be added" );
+        PathFingerprint fingerprint = fingerprint( path );
+        if ( contains( fingerprint, path ) )
+        {
+            return false;
+        }
+
+        long[] signature = signature( path );
+        if ( signature != null && !candidates( signature, maxSimilarity ).isEmpty() )
+        {
+            return false;
+        }
+
+        index( fingerprint, path, signature );
+        return true;
+    }
+
+    /**
+     * Checks an identical path is contained in this set.
+     *
+     * @param path the path to look for
+     * @return true, if an identical path is contained, false otherwise.
+     */
+    public boolean contains( InMemoryPath<V, E> path )
+    {
+        path = requireNonNull( path, "Impossible to look for a null path" );
+        return contains( fingerprint( path ), path );
+    }
+
+    /**
+     * Returns the contained paths whose estimated edge sets similarity with the input path is at least {@code minSimilarity},
+     * among the ones sharing at least one signature band with it: paths below the bands threshold, see
+     * {@link #PathSet(int, int)}, are likely to be missed even if at least {@code minSimilarity} similar.
+     *
+     * @param path the query path
+     * @param minSimilarity the minimum estimated Jaccard similarity of edge sets
+     * @return the contained paths similar to the input one.
+     */
+    public List<InMemoryPath<V, E>> getSimilarPaths( InMemoryPath<V, E> path, double minSimilarity )
+    {
+        path = requireNonNull( path, "Impossible to look for paths similar to a null path" );
+
+        List<InMemoryPath<V, E>> similar = new ArrayList<>();
+        long[] signature = signature( path );
+        if ( signature == null )
+        {
+            return similar;
+        }
+
+        for ( Integer candidate : candidates( signature, minSimilarity ) )
+        {
+            similar.add( paths.get( candidate ) );
+        }
+        return similar;
+    }
+
+    /**
+     * Estimates the Jaccard similarity of the input paths edge sets.
+     *
+     * @param path the first path
+     * @param other the second path
+     * @return the estimated similarity, between 0 and 1, 0 if any of the paths has no edges.
+     */
+    public double similarity( InMemoryPath<V, E> path, InMemoryPath<V, E> other )
+    {
+        path = requireNonNull( path, "Impossible to estimate the similarity of a null path" );
+        other = requireNonNull( other, "Impossible to estimate the similarity of a null path" );
+        return similarity( signature( path ), signature( other ) );
+    }
+
+    /**
+     * Returns the number of paths contained in this set.
+     *
+     * @return the number of paths contained in this set.
+     */
+    public int size()
+    {
+        return paths.size();
+    }
+
+    /**
+     * Checks this set has no elements.
+     *
+     * @return true, if this set has no elements, false otherwise.
+     */
+    public boolean isEmpty()
+    {
+        return paths.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Iterator<InMemoryPath<V, E>> iterator()
+    {
+        return unmodifiableList( paths ).iterator();
+    }
+
+    private long[] signature( InMemoryPath<V, E> path )
+    {
+        // an empty edge set has no minimum hash, it would match every other empty edge set
+        if ( path.getSize() == 0 )
+        {
+            return null;
+        }
+
+        long[] signature = new long[seeds.length];
+        Arrays.fill( signature, Long.MAX_VALUE );
+
+        for ( E edge : path.getEdges() )
+        {
+            long hash = mix( edgeHash( edge ) );
+            for ( int i = 0; i < seeds.length; i++ )
+            {
+                long value = mix( hash ^ seeds[i] );
+                if ( value < signature[i] )
+                {
+                    signature[i] = value;
+                }
+            }
+        }
+
+        return signature;
+    }
+
+    private PathFingerprint fingerprint( InMemoryPath<V, E> path )
+    {
+        if ( edgeHashes == null )
+        {
+            return path.getFingerprint();
+        }
+
+        PathFingerprint.Accumulator accumulator = new PathFingerprint.Accumulator();
+        for ( E edge : path.getEdges() )
+        {
+            accumulator.addInTail( edgeHashes.applyAsLong( edge ) );
+        }
+        return accumulator.toFingerprint( path.getSource(), path.getTarget() );
+    }
+
+    private long edgeHash( E edge )
+    {
+        return edgeHashes == null ? Objects.hashCode( edge ) : edgeHashes.applyAsLong( edge );
+    }
+
+    private boolean contains( PathFingerprint fingerprint, InMemoryPath<V, E> path )
+    {
+        List<InMemoryPath<V, E>> candidates = fingerprints.get( fingerprint );
+        if ( candidates == null )
+        {
+            return false;
+        }
+
+        // fingerprints may collide, matches have to be confirmed
+        for ( InMemoryPath<V, E> candidate : candidates )
+        {
+            if ( candidate.getSource().equals( path.getSource() )
+                && candidate.getTarget().equals( path.getTarget() )
+                && elementsEqual( candidate.getEdges(), path.getEdges() ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void index( PathFingerprint fingerprint, InMemoryPath<V, E> path, long[] signature )
+    {
+        List<InMemoryPath<V, E>> sameFingerprint = fingerprints.get( fingerprint );
+        if ( sameFingerprint == null )
+        {
+            sameFingerprint = new ArrayList<>( 1 );
+            fingerprints.put( fingerprint, sameFingerprint );
+        }
+        sameFingerprint.add( path );
+
+        Integer position = paths.size();
+        paths.add( path );
+        signatures.add( signature );
+        if ( signature == null )
+        {
+            return;
+        }
+
+        for ( int band = 0; band < bands; band++ )
+        {
+            Long key = bandKey( signature, band );
+            List<Integer> bucket = buckets.get( key );
+            if ( bucket == null )
+            {
+                bucket = new ArrayList<>( 1 );
+                buckets.put( key, bucket );
+            }
+            bucket.add( position );
+        }
+    }
+
+    private List<Integer> candidates( long[] signature, double minSimilarity )
+    {
+        List<Integer> candidates = new ArrayList<>();
+        BitSet visited = new BitSet();
+
+        for ( int band = 0; band < bands; band++ )
+        {
+            List<Integer> bucket = buckets.get( bandKey( signature, band ) );
+            if ( bucket == null )
+            {
+                continue;
+            }
+
+            for ( Integer candidate : bucket )
+            {
+                if ( !visited.get( candidate ) )
+                {
+                    visited.set( candidate );
+                    if ( similarity( signature, signatures.get( candidate ) ) >= minSimilarity )
+                    {
+                        candidates.add( candidate );
+                    }
+                }
+            }
+        }
+
+        return candidates;
+    }
+
+    private long bandKey( long[] signature, int band )
+    {
+        long key = mix( band );
+        for ( int i = band * rows, end = i + rows; i < end; i++ )
+        {
+            key = mix( key ^ signature[i] );
+        }
+        return key;
+    }
+
+    private static double similarity( long[] signature, long[] other )
+    {
+        if ( signature == null || other == null )
+        {
+            return 0;
+        }
+
+        int matches = 0;
+        for ( int i = 0; i < signature.length; i++ )
+        {
+            if ( signature[i] == other[i] )
+            {
+                matches++;
+            }
+        }
+        return (double) matches / signature.length;
+    }
+
+}
@@ -41,13 +41,33 @@ public final class PredecessorsList<V, WE, W>
 
     private final Function<WE, W> weightedEdges;
 
+    private final ShortcutUnpacker<V, WE> shortcuts;
+
     private final Map<V, V> predecessors = new HashMap<V, V>();
 
     public PredecessorsList( ValueGraph<V, WE> graph, Monoid<W> weightOperations, Function<WE, W> weightedEdges )
+    {
+        this( graph, weightOperations, weightedEdges, null );
+    }
+
+    /**
+     * Creates a new instance of {@link PredecessorsList} whose built paths have the shortcut edges unpacked
+     * into the original ones.
+     *
+     * @param graph the graph, containing both original edges and shortcuts
+     * @param weightOperations the weight operations
+     * @param weightedEdges the function that returns the weight of an edge
+     * @param shortcuts the unpacker of the shortcut edges, null if the graph has no shortcuts
+     */
+    public PredecessorsList( ValueGraph<V, WE> graph,
+                             Monoid<W> weightOperations,
+                             Function<WE, W> weightedEdges,
+                             ShortcutUnpacker<V, WE> shortcuts )
     {
         this.graph = graph;
         this.weightOperations = weightOperations;
         this.weightedEdges = weightedEdges;
+        this.shortcuts = shortcuts;
     }
 
     /**
@@ -80,9 +100,7 @@ public final class PredecessorsList<V, WE, W>
             {
                 throw new PathNotFoundException( "Path from '%s' to '%s' doesn't exist", source, target );
             }
-            WE edge = graph.edgeValue( predecessor, vertex ).get();
-
-            path.addConnectionInHead( predecessor, edge, vertex );
+            addConnectionInHead( path, predecessor, vertex );
 
             vertex = predecessor;
         }
@@ -110,9 +128,7 @@ public final class PredecessorsList<V, WE, W>
             {
                 throw new PathNotFoundException( "Path from '%s' to '%s' doesn't exist", source, target );
             }
-            WE edge = graph.edgeValue( predecessor, vertex ).get();
-
-            path.addConnectionInHead(predecessor, edge, vertex);
+            addConnectionInHead( path, predecessor, vertex );
 
             vertex = predecessor;
         }
@@ -127,9 +143,7 @@ public final class PredecessorsList<V, WE, W>
             {
                 throw new PathNotFoundException( "Path from '%s' to '%s' doesn't exist", source, target );
             }
-            WE edge = graph.edgeValue( vertex, predecessor ).get();
-
-            path.addConnectionInTail( vertex, edge, predecessor );
+            addConnectionInTail( path, vertex, predecessor );
 
             vertex = predecessor;
         }
@@ -137,6 +151,55 @@ public final class PredecessorsList<V, WE, W>
         return path;
     }
 
+    private void addConnectionInHead( InMemoryWeightedPath<V, WE, W> path, V head, V tail )
+    {
+        if ( shortcuts == null )
+        {
+            path.addConnectionInHead( head, graph.edgeValue( head, tail ).get(), tail );
+            return;
+        }
+
+        shortcuts.appendInHead( path, head, tail );
+    }
+
+    private void addConnectionInTail( InMemoryWeightedPath<V, WE, W> path, V head, V tail )
+    {
+        if ( shortcuts == null )
+        {
+            path.addConnectionInTail( head, graph.edgeValue( head, tail ).get(), tail );
+            return;
+        }
+
+        shortcuts.appendInTail( path, head, tail );
+    }
+
+    /**
+     * Returns the predecessor of the input vertex, or the successor when the list has been
+     * populated along reversed edges.
+     *
+     * @param vertex the vertex whose predecessor has to be retrieved
+     * @return the predecessor of the input vertex, null if none
+     */
+    V getPredecessor( V vertex )
+    {
+        return predecessors.get( vertex );
+    }
+
+    ValueGraph<V, WE> getGraph()
+    {
+        return graph;
+    }
+
+    Monoid<W> getWeightOperations()
+    {
+        return weightOperations;
+    }
+
+    Function<WE, W> getWeightedEdges()
+    {
+        return weightedEdges;
+    }
+
     /**
      * Checks the predecessor list has no elements.
      *
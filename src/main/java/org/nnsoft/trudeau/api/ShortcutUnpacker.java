@@ -0,0 +1,264 @@
+package org.nnsoft.trudeau.api;
+
+/*
+ *   Copyright 2013 The Trudeau Project
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+import static java.lang.String.format;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.google.common.graph.ValueGraph;
+
+/**
+ * Expands contraction-hierarchy shortcuts, edges that stand for the two-edges path through their middle vertex,
+ * into the sequence of original edges; unpacking is iterative, and the most recently used shortcuts, nested ones
+ * included, are memoized.
+ *
+ * This class is not thread-safe.
+ *
+ * @param <V> the Graph vertices type
+ * @param <WE> the Graph weighted edges type
+ */
+public final class ShortcutUnpacker<V, WE>
+{
+
+    private static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private final ValueGraph<V, WE> graph;
+
+    private final Function<? super WE, ? extends V> middleVertices;
+
+    private final Map<Entry<V, V>, Hops<V, WE>> cache;
+
+    /**
+     * Creates a new instance of {@link ShortcutUnpacker} that memoizes up to 1024 shortcuts.
+     *
+     * @param graph the graph, containing both original edges and shortcuts
+     * @param middleVertices the function that returns the middle vertex of a shortcut, null for original edges
+     */
+    public ShortcutUnpacker( ValueGraph<V, WE> graph, Function<? super WE, ? extends V> middleVertices )
+    {
+        this( graph, middleVertices, DEFAULT_CACHE_SIZE );
+    }
+
+    /**
+     * Creates a new instance of {@link ShortcutUnpacker}.
+     *
+     * @param graph the graph, containing both original edges and shortcuts
+     * @param middleVertices the function that returns the middle vertex of a shortcut, null for original edges
+     * @param cacheSize the maximum number of memoized shortcuts
+     */
+    public ShortcutUnpacker( ValueGraph<V, WE> graph, Function<? super WE, ? extends V> middleVertices, final int cacheSize )
+    {
+        this.graph = requireNonNull( graph, "Shortcuts cannot be unpacked on a null graph" );
+        this.middleVertices = requireNonNull( middleVertices, "Shortcuts cannot be unpacked with a null middle vertices function" );
+        if ( cacheSize < 0 )
+        {
+            throw new IllegalArgumentException( format( "Shortcuts cache size must not be negative, found %s", cacheSize ) );
+        }
+
+        this.cache = new LinkedHashMap<Entry<V, V>, Hops<V, WE>>( 16, 0.75f, true )
+        {
+
+            private static final long serialVersionUID = -1863455233460441418L;
+
+            @Override
+            protected boolean removeEldestEntry( Entry<Entry<V, V>, Hops<V, WE>> eldest )
+            {
+                return size() > cacheSize;
+            }
+
+        };
+    }
+
+    /**
+     * Returns the vertices traversed by the original edges the head-tail edge stands for, head and tail included.
+     *
+     * @param head the head vertex
+     * @param tail the tail vertex
+     * @return the vertices traversed by the unpacked edge
+     */
+    public List<V> unpack( V head, V tail )
+    {
+        return unmodifiableList( hops( head, tail ).vertices );
+    }
+
+    /**
+     * Prepends the original hops the head-tail edge stands for to the input path.
+     *
+     * @param path the path under construction
+     * @param head the head vertex
+     * @param tail the tail vertex
+     */
+    void appendInHead( InMemoryPath<V, WE> path, V head, V tail )
+    {
+        Hops<V, WE> hops = hops( head, tail );
+        for ( int i = hops.edges.size() - 1; i >= 0; i-- )
+        {
+            path.addConnectionInHead( hops.vertices.get( i ), hops.edges.get( i ), hops.vertices.get( i + 1 ) );
+        }
+    }
+
+    /**
+     * Appends the original hops the head-tail edge stands for to the input path.
+     *
+     * @param path the path under construction
+     * @param head the head vertex
+     * @param tail the tail vertex
+     */
+    void appendInTail( InMemoryPath<V, WE> path, V head, V tail )
+    {
+        Hops<V, WE> hops = hops( head, tail );
+        for ( int i = 0; i < hops.edges.size(); i++ )
+        {
+            path.addConnectionInTail( hops.vertices.get( i ), hops.edges.get( i ), hops.vertices.get( i + 1 ) );
+        }
+    }
+
+    /**
+     * Unpacks the head-tail edge into the original edges sequence, memoizing every shortcut met on the way.
+     *
+     * @param head the head vertex
+     * @param tail the tail vertex
+     * @return the original hops, from head to tail
+     */
+    private Hops<V, WE> hops( V head, V tail )
+    {
+        Entry<V, V> root = new SimpleImmutableEntry<V, V>( head, tail );
+        Hops<V, WE> hops = cache.get( root );
+        if ( hops != null )
+        {
+            return hops;
+        }
+
+        // post-order visit: a shortcut is composed once both its halves are resolved;
+        // resolved holds them for this unpacking too, since the cache may have evicted them meanwhile
+        Map<Entry<V, V>, Hops<V, WE>> resolved = new HashMap<Entry<V, V>, Hops<V, WE>>();
+        Set<Entry<V, V>> visiting = new HashSet<Entry<V, V>>();
+        Deque<Entry<V, V>> pending = new ArrayDeque<Entry<V, V>>();
+        pending.push( root );
+        visiting.add( root );
+        while ( !pending.isEmpty() )
+        {
+            Entry<V, V> pair = pending.peek();
+
+            WE edge = edgeValue( pair.getKey(), pair.getValue() );
+            V middle = middleVertices.apply( edge );
+            if ( middle == null )
+            {
+                hops = new Hops<V, WE>( 2 );
+                hops.vertices.add( pair.getKey() );
+                hops.vertices.add( pair.getValue() );
+                hops.edges.add( edge );
+            }
+            else
+            {
+                if ( middle.equals( pair.getKey() ) || middle.equals( pair.getValue() ) )
+                {
+                    throw new GraphException( "Shortcut from '%s' to '%s' can not have one of its ends as middle vertex",
+                                              pair.getKey(), pair.getValue() );
+                }
+
+                Entry<V, V> left = new SimpleImmutableEntry<V, V>( pair.getKey(), middle );
+                Entry<V, V> right = new SimpleImmutableEntry<V, V>( middle, pair.getValue() );
+                Hops<V, WE> leftHops = lookup( left, resolved );
+                Hops<V, WE> rightHops = lookup( right, resolved );
+                if ( leftHops == null || rightHops == null )
+                {
+                    if ( rightHops == null )
+                    {
+                        visit( right, visiting, pending );
+                    }
+                    if ( leftHops == null )
+                    {
+                        visit( left, visiting, pending );
+                    }
+                    continue;
+                }
+
+                hops = new Hops<V, WE>( leftHops.vertices.size() + rightHops.vertices.size() - 1 );
+                hops.vertices.addAll( leftHops.vertices );
+                hops.vertices.addAll( rightHops.vertices.subList( 1, rightHops.vertices.size() ) );
+                hops.edges.addAll( leftHops.edges );
+                hops.edges.addAll( rightHops.edges );
+                cache.put( pair, hops );
+            }
+
+            resolved.put( pair, hops );
+            visiting.remove( pair );
+            pending.pop();
+        }
+
+        return hops;
+    }
+
+    private Hops<V, WE> lookup( Entry<V, V> pair, Map<Entry<V, V>, Hops<V, WE>> resolved )
+    {
+        Hops<V, WE> hops = resolved.get( pair );
+        return hops != null ? hops : cache.get( pair );
+    }
+
+    private static <V> void visit( Entry<V, V> pair, Set<Entry<V, V>> visiting, Deque<Entry<V, V>> pending )
+    {
+        if ( !visiting.add( pair ) )
+        {
+            throw new GraphException( "Shortcut from '%s' to '%s' unpacks into itself", pair.getKey(), pair.getValue() );
+        }
+        pending.push( pair );
+    }
+
+    private WE edgeValue( V head, V tail )
+    {
+        WE edge = graph.edgeValue( head, tail ).orElse( null );
+        if ( edge == null )
+        {
+            throw new GraphException( "Impossible to unpack the edge from '%s' to '%s'; not contained in the graph", head, tail );
+        }
+        return edge;
+    }
+
+    /**
+     * The original edges sequence a shortcut stands for.
+     */
+    private static final class Hops<V, WE>
+    {
+
+        final List<V> vertices;
+
+        final List<WE> edges;
+
+        Hops( int size )
+        {
+            vertices = new ArrayList<V>( size );
+            edges = new ArrayList<WE>( size - 1 );
+        }
+
+    }
+
+}
@@ -0,0 +1,164 @@
+package org.nnsoft.trudeau.api;
+
+/*
+ *   Copyright 2013 The Trudeau Project
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collector;
+
+/**
+ * Keeps the {@code k} cheapest {@link WeightedPath}s out of a stream of candidates, in {@code O(k)} memory.
+ *
+ * Paths are ordered by {@link WeightedPath#getWeight()} through the given weight comparator, since
+ * {@link org.nnsoft.trudeau.math.monoid.Monoid} defines how weights combine but not how they compare.
+ *
+ * @param <V> the Graph vertices type
+ * @param <WE> the Graph weighted edges type
+ * @param <W> the weight type
+ */
+public final class TopKWeightedPaths<V, WE, W>
+{
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int k;
+
+    private final Comparator<WeightedPath<V, WE, W>> pathsComparator;
+
+    /**
+     * Max-heap on weights: the head is the most expensive retained path, the first to be evicted.
+     */
+    private final PriorityQueue<WeightedPath<V, WE, W>> heap;
+
+    /**
+     * Creates a new instance of {@link TopKWeightedPaths}.
+     *
+     * @param k the maximum number of retained paths
+     * @param weightComparator the comparator that orders paths weights, cheapest first
+     */
+    public TopKWeightedPaths( int k, Comparator<? super W> weightComparator )
+    {
+        if ( k <= 0 )
+        {
+            throw new IllegalArgumentException( format( "The number of retained paths must be positive, found %s", k ) );
+        }
+        requireNonNull( weightComparator, "Paths cannot be ranked with a null weight comparator" );
+
+        this.k = k;
+        this.pathsComparator = ( p1, p2 ) -> weightComparator.compare( p1.getWeight(), p2.getWeight() );
+        // the heap grows with the retained paths, large k values do not allocate up front
+        this.heap = new PriorityQueue<>( Math.min( k, INITIAL_CAPACITY ), pathsComparator.reversed() );
+    }
+
+    /**
+     * Offers a candidate path, retained only if it is cheaper than the most expensive retained one.
+     *
+     * @param path the candidate path
+     * @return true, if the path has been retained, false otherwise.
+     */
+    public boolean offer( WeightedPath<V, WE, W> path )
+    {
+        path = requireNonNull( path, "Null paths cannot be collected" );
+
+        if ( heap.size() < k )
+        {
+            heap.add( path );
+            return true;
+        }
+
+        if ( pathsComparator.compare( path, heap.peek() ) < 0 )
+        {
+            heap.poll();
+            heap.add( path );
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Offers all the paths retained by the input collector.
+     *
+     * @param other the collector whose paths have to be merged
+     * @return this collector instance
+     */
+    public TopKWeightedPaths<V, WE, W> merge( TopKWeightedPaths<V, WE, W> other )
+    {
+        for ( WeightedPath<V, WE, W> path : other.heap )
+        {
+            offer( path );
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of retained paths.
+     *
+     * @return the number of retained paths.
+     */
+    public int size()
+    {
+        return heap.size();
+    }
+
+    /**
+     * Returns the retained paths, cheapest first.
+     *
+     * @return the retained paths, cheapest first.
+     */
+    public List<WeightedPath<V, WE, W>> getPaths()
+    {
+        List<WeightedPath<V, WE, W>> paths = new ArrayList<>( heap );
+        Collections.sort( paths, pathsComparator );
+        return paths;
+    }
+
+    /**
+     * Returns a {@link Collector} that reduces a stream of paths to the {@code k} cheapest ones, cheapest first.
+     *
+     * Each partition of a parallel stream keeps its own bounded heap; heaps are merged pairwise.
+     *
+     * @param <V> the Graph vertices type
+     * @param <WE> the Graph weighted edges type
+     * @param <W> the weight type
+     * @param k the maximum number of retained paths
+     * @param weightComparator the comparator that orders paths weights, cheapest first
+     * @return the collector of the {@code k} cheapest paths
+     */
+    public static <V, WE, W> Collector<WeightedPath<V, WE, W>, ?, List<WeightedPath<V, WE, W>>> toTopK( int k,
+                                                                                                      Comparator<? super W> weightComparator )
+    {
+        if ( k <= 0 )
+        {
+            throw new IllegalArgumentException( format( "The number of retained paths must be positive, found %s", k ) );
+        }
+        requireNonNull( weightComparator, "Paths cannot be ranked with a null weight comparator" );
+
+        return Collector.of( () -> new TopKWeightedPaths<V, WE, W>( k, weightComparator ),
+                             TopKWeightedPaths::offer,
+                             TopKWeightedPaths::merge,
+                             TopKWeightedPaths::getPaths,
+                             Collector.Characteristics.UNORDERED );
+    }
+
+}
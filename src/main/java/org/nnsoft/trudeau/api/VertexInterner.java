@@ -0,0 +1,117 @@
+package org.nnsoft.trudeau.api;
+
+/*
+ *   Copyright 2013 The Trudeau Project
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.graph.ValueGraph;
+
+/**
+ * Assigns dense {@code int} ids, in {@code [0, size())}, to the vertices of a {@link ValueGraph},
+ * so that structures can be indexed by arrays instead of hashing vertices on each operation.
+ *
+ * Ids are assigned once, when the interner is created: vertices added to the graph later are not known.
+ *
+ * @param <V> the Graph vertices type
+ */
+public final class VertexInterner<V>
+{
+
+    /**
+     * The id that denotes no vertex.
+     */
+    public static final int NO_VERTEX = -1;
+
+    private final Map<V, Integer> ids;
+
+    private final Object[] vertices;
+
+    /**
+     * Creates a new instance of {@link VertexInterner} over the current vertices of the input graph.
+     *
+     * @param graph the graph whose vertices have to be interned
+     */
+    public VertexInterner( ValueGraph<V, ?> graph )
+    {
+        graph = requireNonNull( graph, "Impossible to intern the vertices of a null graph" );
+
+        vertices = graph.nodes().toArray();
+        ids = new HashMap<V, Integer>( vertices.length * 4 / 3 + 1 );
+        for ( int i = 0; i < vertices.length; i++ )
+        {
+            ids.put( getVertex( i ), i );
+        }
+    }
+
+    /**
+     * Returns the id of the input vertex.
+     *
+     * @param vertex the vertex whose id has to be retrieved
+     * @return the id of the input vertex
+     */
+    public int getId( V vertex )
+    {
+        vertex = requireNonNull( vertex, "Impossible to get the id of a null vertex" );
+        Integer id = ids.get( vertex );
+        if ( id == null )
+        {
+            throw new GraphException( "Impossible to get the id of input vertex; %s not contained in this interner", vertex );
+        }
+        return id;
+    }
+
+    /**
+     * Returns the vertex identified by the input id.
+     *
+     * @param id the vertex id
+     * @return the vertex identified by the input id
+     */
+    @SuppressWarnings( "unchecked" ) // only V instances are stored
+    public V getVertex( int id )
+    {
+        if ( id < 0 || id >= vertices.length )
+        {
+            throw new GraphException( "Impossible to get the vertex of input id; %s not in [0, %s)", id, vertices.length );
+        }
+        return (V) vertices[id];
+    }
+
+    /**
+     * Checks the input vertex has been interned.
+     *
+     * @param vertex the vertex to look for
+     * @return true, if the input vertex has been interned, false otherwise.
+     */
+    public boolean contains( V vertex )
+    {
+        return ids.containsKey( vertex );
+    }
+
+    /**
+     * Returns the number of interned vertices, that is, the exclusive upper bound of ids.
+     *
+     * @return the number of interned vertices.
+     */
+    public int size()
+    {
+        return vertices.length;
+    }
+
+}